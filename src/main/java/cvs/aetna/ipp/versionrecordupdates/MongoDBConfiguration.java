@@ -2,36 +2,130 @@ package cvs.aetna.ipp.versionrecordupdates;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import cvs.aetna.ipp.versionrecordupdates.config.MongoClientProperties;
+import cvs.aetna.ipp.versionrecordupdates.config.MongoConnectionPoolWarmer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.codecs.pojo.PojoCodecProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
 import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
 
 @Configuration
+@EnableConfigurationProperties(MongoClientProperties.class)
 public class MongoDBConfiguration {
 
     @Value("${spring.data.mongodb.uri}")
     private String connectionString;
 
+    /**
+     * Creates the listener that holds startup until the connection pools reach their minimum size
+     * 
+     * @param properties Client tuning options bound from the "mongodb.client" properties
+     * @return The connection pool warmer, registered on the client's cluster and connection pools
+     */
+    @Bean
+    public MongoConnectionPoolWarmer mongoConnectionPoolWarmer(MongoClientProperties properties) {
+        return new MongoConnectionPoolWarmer(properties.getPool());
+    }
+
     /**
      * Creates and configures the MongoDB client with POJO codec support
      * The POJO codec allows automatic mapping between Java objects and MongoDB documents
+     * Connection pool, socket and wire compression settings set in MongoClientProperties override
+     * the connection string; unset ones keep the connection string value or the driver default.
+     * Connection pool events are published as Micrometer metrics (mongodb.driver.pool.*), and command
+     * timings (mongodb.driver.commands) as well when mongodb.client.command-metrics is enabled
      * 
+     * @param properties Client tuning options bound from the "mongodb.client" properties
+     * @param meterRegistry Registry the connection pool and command metrics are published to
+     * @param poolWarmer Listener waiting at startup for the pools to reach their minimum size
      * @return Configured MongoClient instance
      */
     @Bean
-    public MongoClient mongoClient() {
+    public MongoClient mongoClient(MongoClientProperties properties, MeterRegistry meterRegistry,
+                                   MongoConnectionPoolWarmer poolWarmer) {
         CodecRegistry pojoCodecRegistry = fromProviders(PojoCodecProvider.builder().automatic(true).build());
         CodecRegistry codecRegistry = fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), pojoCodecRegistry);
-        return MongoClients.create(MongoClientSettings.builder()
+        MongoClientProperties.Pool pool = properties.getPool();
+        MongoClientProperties.Socket socket = properties.getSocket();
+
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
                 .applyConnectionString(new ConnectionString(connectionString))
                 .codecRegistry(codecRegistry)
-                .build());
+                .applyToConnectionPoolSettings(builder -> {
+                    if (pool.getMinSize() != null) {
+                        builder.minSize(pool.getMinSize());
+                    }
+                    if (pool.getMaxSize() != null) {
+                        builder.maxSize(pool.getMaxSize());
+                    }
+                    if (pool.getMaxConnecting() != null) {
+                        builder.maxConnecting(pool.getMaxConnecting());
+                    }
+                    if (pool.getMaxWaitTime() != null) {
+                        builder.maxWaitTime(pool.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS);
+                    }
+                    if (pool.getMaxIdleTime() != null) {
+                        builder.maxConnectionIdleTime(pool.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+                    }
+                    if (pool.getMaxLifeTime() != null) {
+                        builder.maxConnectionLifeTime(pool.getMaxLifeTime().toMillis(), TimeUnit.MILLISECONDS);
+                    }
+                    builder.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry))
+                            .addConnectionPoolListener(poolWarmer);
+                })
+                .applyToClusterSettings(builder -> builder.addClusterListener(poolWarmer))
+                .applyToSocketSettings(builder -> {
+                    if (socket.getConnectTimeout() != null) {
+                        builder.connectTimeout(Math.toIntExact(socket.getConnectTimeout().toMillis()), TimeUnit.MILLISECONDS);
+                    }
+                    if (socket.getReadTimeout() != null) {
+                        builder.readTimeout(Math.toIntExact(socket.getReadTimeout().toMillis()), TimeUnit.MILLISECONDS);
+                    }
+                });
+
+        if (properties.isCommandMetrics()) {
+            settings.addCommandListener(new MongoMetricsCommandListener(meterRegistry));
+        }
+
+        if (properties.getCompressors() != null && !properties.getCompressors().isEmpty()) {
+            settings.compressorList(createCompressors(properties.getCompressors()));
+        }
+
+        MongoClientSettings clientSettings = settings.build();
+        poolWarmer.setMinSize(clientSettings.getConnectionPoolSettings().getMinSize());
+        return MongoClients.create(clientSettings);
+    }
+
+    /**
+     * Maps compressor names to driver compressors, keeping the configured order of preference
+     * The server picks the first compressor in the list that it also supports
+     * 
+     * @param names Compressor names (zstd, snappy or zlib)
+     * @return The driver compressors
+     * @throws IllegalArgumentException if a compressor name is not recognized
+     */
+    static List<MongoCompressor> createCompressors(List<String> names) {
+        return names.stream()
+                .map(name -> switch (name.trim().toLowerCase()) {
+                    case "zstd" -> MongoCompressor.createZstdCompressor();
+                    case "snappy" -> MongoCompressor.createSnappyCompressor();
+                    case "zlib" -> MongoCompressor.createZlibCompressor();
+                    default -> throw new IllegalArgumentException("Unsupported MongoDB compressor: " + name);
+                })
+                .toList();
     }
 }
@@ -3,10 +3,12 @@ package cvs.aetna.ipp.versionrecordupdates;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
 @EnableTransactionManagement
+@EnableScheduling
 @EnableMongoRepositories(basePackages = "cvs.aetna.ipp.versionrecordupdates")
 public class VersionRecordUpdatesApplication {
     /**
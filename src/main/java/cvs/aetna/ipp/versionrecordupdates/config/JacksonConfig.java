@@ -4,9 +4,14 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.bson.types.ObjectId;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 
 import java.io.IOException;
 
@@ -46,4 +51,30 @@ public class JacksonConfig {
         
         return module;
     }
+
+    /**
+     * Creates a message converter for the binary Smile format (application/x-jackson-smile)
+     * Uses Spring Boot's pre-configured builder so the ObjectId module and Java time
+     * handling match the JSON representation exactly
+     * 
+     * @param builder Spring Boot's Jackson builder (prototype scoped, a fresh instance per injection)
+     * @return A message converter for Smile request and response bodies
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Creates a message converter for the binary CBOR format (application/cbor)
+     * Uses Spring Boot's pre-configured builder so the ObjectId module and Java time
+     * handling match the JSON representation exactly
+     * 
+     * @param builder Spring Boot's Jackson builder (prototype scoped, a fresh instance per injection)
+     * @return A message converter for CBOR request and response bodies
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
 }
@@ -0,0 +1,123 @@
+package cvs.aetna.ipp.versionrecordupdates.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tuning options for the MongoDB client, bound from the "mongodb.client" properties
+ * Only values that are set are applied, taking precedence over the equivalent connection string options;
+ * anything left unset keeps the connection string value or the driver default
+ */
+@ConfigurationProperties(prefix = "mongodb.client")
+public class MongoClientProperties {
+
+    /**
+     * Network compressors offered to the server in order of preference: zstd, snappy or zlib
+     * zstd and snappy additionally need com.github.luben:zstd-jni or org.xerial.snappy:snappy-java on the classpath
+     */
+    private List<String> compressors;
+    // Publish a timer per command (mongodb.driver.commands); adds a little overhead to every command
+    private boolean commandMetrics = false;
+    private final Pool pool = new Pool();
+    private final Socket socket = new Socket();
+
+    public List<String> getCompressors() {
+        return compressors;
+    }
+    public void setCompressors(List<String> compressors) {
+        this.compressors = compressors;
+    }
+    public boolean isCommandMetrics() {
+        return commandMetrics;
+    }
+    public void setCommandMetrics(boolean commandMetrics) {
+        this.commandMetrics = commandMetrics;
+    }
+    public Pool getPool() {
+        return pool;
+    }
+    public Socket getSocket() {
+        return socket;
+    }
+
+    public static class Pool {
+        private Integer minSize;
+        private Integer maxSize;
+        private Integer maxConnecting;
+        private Duration maxWaitTime;
+        private Duration maxIdleTime;
+        private Duration maxLifeTime; // zero means no limit
+        // Wait at startup until min-size connections are open (or the timeout passes)
+        private boolean prewarm = true;
+        private Duration prewarmTimeout = Duration.ofSeconds(10);
+
+        public Integer getMinSize() {
+            return minSize;
+        }
+        public void setMinSize(Integer minSize) {
+            this.minSize = minSize;
+        }
+        public Integer getMaxSize() {
+            return maxSize;
+        }
+        public void setMaxSize(Integer maxSize) {
+            this.maxSize = maxSize;
+        }
+        public Integer getMaxConnecting() {
+            return maxConnecting;
+        }
+        public void setMaxConnecting(Integer maxConnecting) {
+            this.maxConnecting = maxConnecting;
+        }
+        public Duration getMaxWaitTime() {
+            return maxWaitTime;
+        }
+        public void setMaxWaitTime(Duration maxWaitTime) {
+            this.maxWaitTime = maxWaitTime;
+        }
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+        public void setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+        }
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+        public void setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+        }
+        public boolean isPrewarm() {
+            return prewarm;
+        }
+        public void setPrewarm(boolean prewarm) {
+            this.prewarm = prewarm;
+        }
+        public Duration getPrewarmTimeout() {
+            return prewarmTimeout;
+        }
+        public void setPrewarmTimeout(Duration prewarmTimeout) {
+            this.prewarmTimeout = prewarmTimeout;
+        }
+    }
+
+    public static class Socket {
+        private Duration connectTimeout;
+        private Duration readTimeout; // zero means no timeout
+
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+    }
+}
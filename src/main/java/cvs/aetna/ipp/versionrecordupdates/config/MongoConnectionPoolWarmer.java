@@ -0,0 +1,145 @@
+package cvs.aetna.ipp.versionrecordupdates.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ClusterType;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import com.mongodb.event.ClusterListener;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.mongodb.event.ConnectionReadyEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds application startup until the MongoDB connection pools have opened their minimum number of connections
+ * The driver fills each pool to minSize in the background (at most maxConnecting at a time) as soon as
+ * the client is created. This listener counts the connections that become ready per server and, once all
+ * singletons are created but before the web server starts taking traffic, waits until every pool has reached
+ * minSize, so the first requests after a deploy don't pay for connection setup and the handshake.
+ * Pools only exist once the driver has discovered their server, so the wait also covers every data-bearing
+ * (or not yet reached) server in the latest cluster description, not just the pools created so far.
+ * Startup continues against a partially filled pool once the timeout passes
+ */
+public class MongoConnectionPoolWarmer implements ConnectionPoolListener, ClusterListener, SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoConnectionPoolWarmer.class);
+
+    private final MongoClientProperties.Pool properties;
+    private final Map<ServerAddress, Integer> openConnections = new HashMap<>();
+    private List<ServerAddress> expectedServers = List.of();
+    private boolean clusterKnown;
+    private int minSize;
+
+    /**
+     * Constructor that initializes the warmer with the pool warm-up settings
+     *
+     * @param properties Pool options holding the prewarm flag and timeout
+     */
+    public MongoConnectionPoolWarmer(MongoClientProperties.Pool properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Sets the pool minimum size to wait for, as resolved from the properties, connection string and driver defaults
+     *
+     * @param minSize The effective minimum number of connections per pool
+     */
+    public synchronized void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public synchronized void clusterDescriptionChanged(ClusterDescriptionChangedEvent event) {
+        ClusterDescription description = event.getNewDescription();
+        clusterKnown = description.getType() != ClusterType.UNKNOWN;
+        // Arbiters and other non data-bearing members never serve application traffic
+        expectedServers = description.getServerDescriptions().stream()
+                .filter(server -> !server.isOk() || server.isDataBearing())
+                .map(ServerDescription::getAddress)
+                .toList();
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        openConnections.putIfAbsent(event.getServerId().getAddress(), 0);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        openConnections.remove(event.getServerId().getAddress());
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void connectionReady(ConnectionReadyEvent event) {
+        openConnections.merge(event.getConnectionId().getServerId().getAddress(), 1, Integer::sum);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.computeIfPresent(event.getConnectionId().getServerId().getAddress(),
+                (server, count) -> Math.max(count - 1, 0));
+    }
+
+    /**
+     * Waits for the pools to warm up when prewarm is enabled and the pools have a minimum size
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.isPrewarm() && minSize > 0) {
+            awaitWarm(properties.getPrewarmTimeout());
+        }
+    }
+
+    /**
+     * Waits until the pool of every expected server has minSize ready connections or the timeout passes
+     *
+     * @param timeout The longest time to wait
+     * @return true if the pools are warm, false if the timeout passed or the wait was interrupted
+     */
+    synchronized boolean awaitWarm(Duration timeout) {
+        LOGGER.info("Waiting for MongoDB connection pools to open {} connections", minSize);
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        try {
+            while (!isWarm()) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    LOGGER.warn("MongoDB connection pools not warm after {}; servers: {}, open connections per server: {}",
+                            timeout, expectedServers, openConnections);
+                    return false;
+                }
+                wait(remainingMillis);
+            }
+            LOGGER.info("MongoDB connection pools warm in {} ms; open connections per server: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), openConnections);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for MongoDB connection pools to warm up");
+            return false;
+        }
+    }
+
+    /**
+     * @return true once the cluster has been discovered and every expected server's pool holds minSize connections
+     */
+    synchronized boolean isWarm() {
+        return clusterKnown
+                && !expectedServers.isEmpty()
+                && expectedServers.stream().allMatch(server -> openConnections.getOrDefault(server, 0) >= minSize);
+    }
+}
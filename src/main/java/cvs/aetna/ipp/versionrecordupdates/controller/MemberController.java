@@ -1,14 +1,24 @@
 package cvs.aetna.ipp.versionrecordupdates.controller;
 
+import cvs.aetna.ipp.versionrecordupdates.exception.IdempotencyKeyReusedException;
+import cvs.aetna.ipp.versionrecordupdates.model.CompactionReport;
 import cvs.aetna.ipp.versionrecordupdates.model.Member;
 import cvs.aetna.ipp.versionrecordupdates.service.MemberService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -16,6 +26,9 @@ import java.util.NoSuchElementException;
 @RequestMapping("/members")
 public class MemberController {
     private static final Logger LOGGER = LoggerFactory.getLogger(MemberController.class);
+    public static final String APPLICATION_BSON_VALUE = "application/bson";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 
     @Autowired
     private MemberService memberService;
@@ -42,21 +55,29 @@ public class MemberController {
     /**
      * REST endpoint to update a member while keeping version history
      * Creates a new version of the member record and marks the previous version as inactive
+     * Clients may send an Idempotency-Key header so that retries of the same update
+     * return the original result instead of creating another version
      * 
      * @param member The updated member data from request body
+     * @param idempotencyKey Optional client supplied key identifying this update
      * @return HTTP 200 OK with a list of all versions of the member
-     * @throws IllegalArgumentException if member ID is empty or null
+     * @throws IllegalArgumentException if member ID is empty or null, or the idempotency key is blank
+     * @throws IdempotencyKeyReusedException if the idempotency key was used for another member or update
      * @throws NoSuchElementException if no member with given ID exists
      */
     @PostMapping("/updateMemberKeepHistory")
-    public ResponseEntity<List<Member>> updateMember(@RequestBody Member member) {
+    public ResponseEntity<List<Member>> updateMember(@RequestBody Member member,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         LOGGER.info("Received request to update member with ID: {}", member.getMemberId());
         
         if (member.getMemberId() == null || member.getMemberId().trim().isEmpty()) {
             throw new IllegalArgumentException("Member ID cannot be empty");
         }
+        if (idempotencyKey != null && idempotencyKey.trim().isEmpty()) {
+            throw new IllegalArgumentException("Idempotency key cannot be blank");
+        }
         
-        List<Member> updatedMembers = memberService.updateMember(member);
+        List<Member> updatedMembers = memberService.updateMember(member, idempotencyKey);
         
         if (updatedMembers == null || updatedMembers.isEmpty()) {
             throw new NoSuchElementException("No member found with ID: " + member.getMemberId());
@@ -85,4 +106,100 @@ public class MemberController {
         
         return ResponseEntity.ok(member);
     }
+
+    /**
+     * REST endpoint to retrieve every version of a member record, oldest first
+     * The response format follows the Accept header: JSON (default), Smile or CBOR
+     * 
+     * @param memberId The unique identifier for the member
+     * @return HTTP 200 OK with all versions of the member
+     * @throws NoSuchElementException if no member with given ID exists
+     */
+    @GetMapping(value = "/history/{memberId}", produces = {
+            MediaType.APPLICATION_JSON_VALUE, APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<List<Member>> getMemberHistory(@PathVariable String memberId) {
+        LOGGER.info("Received request to get history for member with ID: {}", memberId);
+
+        List<Member> history = memberService.getMemberHistory(memberId);
+
+        if (history == null || history.isEmpty()) {
+            throw new NoSuchElementException("No member found with ID: " + memberId);
+        }
+
+        return ResponseEntity.ok(history);
+    }
+
+    /**
+     * REST endpoint to stream every version of a member record as raw BSON, oldest first
+     * Documents are written back to back exactly as stored (the same layout as a mongodump .bson file),
+     * without being decoded into Member objects
+     * 
+     * @param memberId The unique identifier for the member
+     * @return HTTP 200 OK with a stream of concatenated BSON documents
+     * @throws NoSuchElementException if no member with given ID exists
+     */
+    @GetMapping(value = "/rawHistory/{memberId}", produces = APPLICATION_BSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getMemberHistoryRaw(@PathVariable String memberId) {
+        LOGGER.info("Received request to stream raw history for member with ID: {}", memberId);
+
+        // Checked up front since the status is already sent once the body starts streaming
+        if (!memberService.memberExists(memberId)) {
+            throw new NoSuchElementException("No member found with ID: " + memberId);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            WritableByteChannel channel = Channels.newChannel(outputStream);
+            memberService.streamMemberHistoryRaw(memberId, document -> {
+                try {
+                    channel.write(document.getByteBuffer().asNIO());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_BSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * REST endpoint to retrieve the version of a member record that was in effect on a given date
+     * 
+     * @param memberId The unique identifier for the member
+     * @param date The date to look up, in ISO format (yyyy-MM-dd)
+     * @return HTTP 200 OK with the member version in effect on that date
+     * @throws NoSuchElementException if no version of the member was in effect on that date
+     */
+    @GetMapping("/asOf/{memberId}")
+    public ResponseEntity<Member> getMemberAsOf(@PathVariable String memberId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LOGGER.info("Received request to get member with ID: {} as of {}", memberId, date);
+
+        Member member = memberService.getMemberAsOf(memberId, date);
+
+        if (member == null) {
+            throw new NoSuchElementException("No member found with ID: " + memberId + " as of " + date);
+        }
+
+        return ResponseEntity.ok(member);
+    }
+
+    /**
+     * REST endpoint to compact closed versions of older months into monthly history buckets
+     * 
+     * @param maxMembers Maximum number of members to compact in this run
+     * @return HTTP 200 OK with the storage, index and history read latency before and after
+     * @throws IllegalArgumentException if maxMembers is not positive
+     */
+    @PostMapping("/compactHistory")
+    public ResponseEntity<CompactionReport> compactHistory(@RequestParam(defaultValue = "1000") int maxMembers) {
+        LOGGER.info("Received request to compact history for up to {} members", maxMembers);
+
+        if (maxMembers <= 0) {
+            throw new IllegalArgumentException("maxMembers must be positive");
+        }
+
+        return ResponseEntity.ok(memberService.compactHistory(maxMembers));
+    }
 }
@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -48,12 +49,13 @@ public class GlobalExceptionHandler {
     }
     
     /**
-     * Handles malformed request bodies and invalid parameter types
+     * Handles malformed request bodies and missing or invalid parameters
      * 
      * @param ex The exception that was thrown during request processing
      * @return HTTP 400 with error message
      */
-    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class})
+    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentTypeMismatchException.class,
+            MissingServletRequestParameterException.class})
     public ResponseEntity<ErrorResponse> handleBadRequestException(Exception ex) {
         LOGGER.error("Bad request: {}", ex.getMessage());
         return ResponseEntity
@@ -75,6 +77,20 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponse(ex.getMessage()));
     }
     
+    /**
+     * Handles an idempotency key sent again for another member or a different update
+     * 
+     * @param ex The IdempotencyKeyReusedException that was thrown
+     * @return HTTP 400 with error message
+     */
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        LOGGER.error("Idempotency key reused: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse(ex.getMessage()));
+    }
+    
     /**
      * Handles MongoDB specific write errors
      * Provides special handling for duplicate key errors (code 11000)
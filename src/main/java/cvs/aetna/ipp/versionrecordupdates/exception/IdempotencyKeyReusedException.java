@@ -0,0 +1,12 @@
+package cvs.aetna.ipp.versionrecordupdates.exception;
+
+/**
+ * Thrown when an Idempotency-Key that was already processed is sent again
+ * for another member or with a different update
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package cvs.aetna.ipp.versionrecordupdates.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class CompactionReport {
+    private LocalDate cutoff;             // versions starting before this date were compacted
+    private int membersCompacted;
+    private int versionsCompacted;
+    private List<StorageStats> storageBefore;
+    private List<StorageStats> storageAfter;
+    private long historyReadMicrosBefore; // average getMemberHistory latency over sampled members
+    private long historyReadMicrosAfter;
+
+    // Getters and setters
+
+    public LocalDate getCutoff() {
+        return cutoff;
+    }
+    public void setCutoff(LocalDate cutoff) {
+        this.cutoff = cutoff;
+    }
+    public int getMembersCompacted() {
+        return membersCompacted;
+    }
+    public void setMembersCompacted(int membersCompacted) {
+        this.membersCompacted = membersCompacted;
+    }
+    public int getVersionsCompacted() {
+        return versionsCompacted;
+    }
+    public void setVersionsCompacted(int versionsCompacted) {
+        this.versionsCompacted = versionsCompacted;
+    }
+    public List<StorageStats> getStorageBefore() {
+        return storageBefore;
+    }
+    public void setStorageBefore(List<StorageStats> storageBefore) {
+        this.storageBefore = storageBefore;
+    }
+    public List<StorageStats> getStorageAfter() {
+        return storageAfter;
+    }
+    public void setStorageAfter(List<StorageStats> storageAfter) {
+        this.storageAfter = storageAfter;
+    }
+    public long getHistoryReadMicrosBefore() {
+        return historyReadMicrosBefore;
+    }
+    public void setHistoryReadMicrosBefore(long historyReadMicrosBefore) {
+        this.historyReadMicrosBefore = historyReadMicrosBefore;
+    }
+    public long getHistoryReadMicrosAfter() {
+        return historyReadMicrosAfter;
+    }
+    public void setHistoryReadMicrosAfter(long historyReadMicrosAfter) {
+        this.historyReadMicrosAfter = historyReadMicrosAfter;
+    }
+}
@@ -0,0 +1,49 @@
+package cvs.aetna.ipp.versionrecordupdates.model;
+
+public class StorageStats {
+    private String collection;
+    private long documents;
+    private long dataSize;     // uncompressed BSON bytes
+    private long storageSize;  // bytes on disk
+    private long indexSize;    // bytes on disk across all indexes
+
+    public StorageStats() {
+    }
+
+    public StorageStats(String collection) {
+        this.collection = collection;
+    }
+
+    // Getters and setters
+
+    public String getCollection() {
+        return collection;
+    }
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+    public long getDocuments() {
+        return documents;
+    }
+    public void setDocuments(long documents) {
+        this.documents = documents;
+    }
+    public long getDataSize() {
+        return dataSize;
+    }
+    public void setDataSize(long dataSize) {
+        this.dataSize = dataSize;
+    }
+    public long getStorageSize() {
+        return storageSize;
+    }
+    public void setStorageSize(long storageSize) {
+        this.storageSize = storageSize;
+    }
+    public long getIndexSize() {
+        return indexSize;
+    }
+    public void setIndexSize(long indexSize) {
+        this.indexSize = indexSize;
+    }
+}
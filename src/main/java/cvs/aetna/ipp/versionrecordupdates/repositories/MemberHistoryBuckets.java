@@ -0,0 +1,127 @@
+package cvs.aetna.ipp.versionrecordupdates.repositories;
+
+import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Converts closed member versions to and from time-bucketed history documents
+ * One bucket holds every closed version of a member whose effStartDate falls in the same month:
+ *
+ * { memberId, month: "2025-03", firstEffStartDate, lastEffEndDate, minVersion, maxVersion, count,
+ *   shared: { fields identical across all versions in the bucket },
+ *   versions: [ { _id, version, effStartDate, effEndDate, fields that differ } ] }
+ *
+ * memberId is stored once per bucket, and currInd is dropped since bucketed versions are always closed ("N")
+ */
+final class MemberHistoryBuckets {
+
+    static final String COLLECTION = "memberHistoryBucket";
+
+    // Fields stored once in "shared" when every version in the bucket has the same value
+    private static final Map<String, Function<Member, Object>> SHARABLE_FIELDS = Map.of(
+            "firstName", Member::getFirstName,
+            "lastName", Member::getLastName,
+            "primaryNumber", Member::getPrimaryNumber);
+
+    private MemberHistoryBuckets() {
+    }
+
+    /**
+     * Builds the bucket document for one member and month
+     * Versions are de-duplicated by version number and kept in version order
+     *
+     * @param memberId The unique identifier for the member
+     * @param month The month the versions' effStartDate falls in
+     * @param members Closed versions of the member starting in that month
+     * @return The bucket document
+     */
+    static Document toBucket(String memberId, YearMonth month, List<Member> members) {
+        Map<Integer, Member> byVersion = new TreeMap<>();
+        members.forEach(member -> byVersion.putIfAbsent(member.getVersion(), member));
+        List<Member> versions = new ArrayList<>(byVersion.values());
+
+        Document shared = new Document();
+        SHARABLE_FIELDS.forEach((field, getter) -> {
+            Object first = getter.apply(versions.get(0));
+            if (versions.stream().allMatch(member -> Objects.equals(getter.apply(member), first))) {
+                shared.append(field, first);
+            }
+        });
+
+        List<Document> versionDocuments = new ArrayList<>();
+        for (Member member : versions) {
+            Document version = new Document("_id", member.getId())
+                    .append("version", member.getVersion())
+                    .append("effStartDate", member.getEffStartDate())
+                    .append("effEndDate", member.getEffEndDate());
+            SHARABLE_FIELDS.forEach((field, getter) -> {
+                if (!shared.containsKey(field)) {
+                    version.append(field, getter.apply(member));
+                }
+            });
+            versionDocuments.add(version);
+        }
+
+        return new Document("memberId", memberId)
+                .append("month", month.toString())
+                .append("firstEffStartDate", versions.stream().map(Member::getEffStartDate).min(Comparator.naturalOrder()).orElseThrow())
+                .append("lastEffEndDate", versions.stream().map(Member::getEffEndDate).max(Comparator.naturalOrder()).orElseThrow())
+                .append("minVersion", versions.get(0).getVersion())
+                .append("maxVersion", versions.get(versions.size() - 1).getVersion())
+                .append("count", versions.size())
+                .append("shared", shared)
+                .append("versions", versionDocuments);
+    }
+
+    /**
+     * Expands a bucket document back into standalone member versions
+     *
+     * @param bucket The bucket document as read from the database
+     * @return The closed versions held in the bucket, in version order
+     */
+    static List<Member> fromBucket(Document bucket) {
+        String memberId = bucket.getString("memberId");
+        Document shared = bucket.get("shared", Document.class);
+        List<Member> members = new ArrayList<>();
+        for (Document version : bucket.getList("versions", Document.class)) {
+            Member member = new Member();
+            member.setId(version.getObjectId("_id"));
+            member.setMemberId(memberId);
+            member.setVersion(version.getInteger("version"));
+            member.setEffStartDate(toLocalDate(version.getDate("effStartDate")));
+            member.setEffEndDate(toLocalDate(version.getDate("effEndDate")));
+            member.setCurrInd("N");
+            member.setFirstName(fieldValue("firstName", version, shared));
+            member.setLastName(fieldValue("lastName", version, shared));
+            member.setPrimaryNumber(fieldValue("primaryNumber", version, shared));
+            members.add(member);
+        }
+        return members;
+    }
+
+    static List<ObjectId> ids(List<Member> members) {
+        return members.stream().map(Member::getId).toList();
+    }
+
+    private static String fieldValue(String field, Document version, Document shared) {
+        return version.containsKey(field) ? version.getString(field) : shared.getString(field);
+    }
+
+    // LocalDate values are stored by the driver as midnight UTC
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toInstant().atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -1,15 +1,33 @@
 package cvs.aetna.ipp.versionrecordupdates.repositories;
 
 import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import cvs.aetna.ipp.versionrecordupdates.model.StorageStats;
+import org.bson.RawBsonDocument;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepository {
 
     public Member save(Member newMember);
 
-    public List<Member> updateMemberKeepHistory(Member newMember);
+    public List<Member> updateMemberKeepHistory(Member newMember, String idempotencyKey);
 
     public Member getMemberByID(String memberId);
+
+    public boolean memberExists(String memberId);
+
+    public List<Member> getMemberHistory(String memberId);
+
+    public void streamMemberHistoryRaw(String memberId, Consumer<RawBsonDocument> consumer);
+
+    public Member getMemberAsOf(String memberId, LocalDate asOf);
+
+    public List<String> findMembersToCompact(LocalDate cutoff, int maxMembers);
+
+    public int compactMemberHistory(String memberId, LocalDate cutoff);
+
+    public List<StorageStats> getStorageStats();
 }
 
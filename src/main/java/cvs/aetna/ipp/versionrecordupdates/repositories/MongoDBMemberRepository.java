@@ -1,26 +1,55 @@
 package cvs.aetna.ipp.versionrecordupdates.repositories;
 
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoCommandException;
 import com.mongodb.ReadConcern;
 import com.mongodb.ReadPreference;
 import com.mongodb.TransactionOptions;
 import com.mongodb.WriteConcern;
 import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.ReturnDocument;
+import cvs.aetna.ipp.versionrecordupdates.exception.IdempotencyKeyReusedException;
 import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import cvs.aetna.ipp.versionrecordupdates.model.StorageStats;
 import jakarta.annotation.PostConstruct;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static com.mongodb.client.model.Aggregates.group;
+import static com.mongodb.client.model.Aggregates.limit;
+import static com.mongodb.client.model.Aggregates.match;
 import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Sorts.descending;
 
 @Repository
 public class MongoDBMemberRepository implements MemberRepository {
@@ -33,6 +62,19 @@ public class MongoDBMemberRepository implements MemberRepository {
             .build();
     private final MongoClient client;
     private MongoCollection<Member> memberCollection;
+    private MongoCollection<RawBsonDocument> rawMemberCollection;
+    private MongoCollection<Document> processedKeyCollection;
+    private MongoCollection<Document> bucketCollection;
+    private Codec<Member> memberCodec;
+
+    @Value("${member.idempotency.ttl:24h}")
+    private Duration idempotencyTtl;
+
+    @Value("${member.idempotency.cache-size:10000}")
+    private int idempotencyCacheSize;
+
+    // Bounded LRU of recently processed idempotency keys, checked before opening a transaction
+    private Map<String, ProcessedUpdate> processedUpdates;
 
     /**
      * Constructor that initializes the repository with a MongoDB client
@@ -52,6 +94,16 @@ public class MongoDBMemberRepository implements MemberRepository {
     void init() {
         try {
             memberCollection = client.getDatabase("memberdb").getCollection("member", Member.class);
+            rawMemberCollection = memberCollection.withDocumentClass(RawBsonDocument.class);
+            processedKeyCollection = client.getDatabase("memberdb").getCollection("memberUpdateKey");
+            bucketCollection = client.getDatabase("memberdb").getCollection(MemberHistoryBuckets.COLLECTION);
+            memberCodec = memberCollection.getCodecRegistry().get(Member.class);
+            processedUpdates = Collections.synchronizedMap(new LinkedHashMap<String, ProcessedUpdate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ProcessedUpdate> eldest) {
+                    return size() > idempotencyCacheSize;
+                }
+            });
             LOGGER.info("MongoDB collection 'member' initialized successfully");
         } catch (Exception e) {
             LOGGER.error("Failed to initialize MongoDB collection: {}", e.getMessage(), e);
@@ -88,18 +140,49 @@ public class MongoDBMemberRepository implements MemberRepository {
      * Uses MongoDB transactions to:
      * 1. Mark the current record as inactive (currInd="N")
      * 2. Create a new version with incremented version number
+     * 3. Record the idempotency key, if one was supplied, alongside the new version
      * This implements the temporal data pattern for auditing and history tracking
      * 
+     * A request carrying an idempotency key that was already processed is answered from the
+     * stored result (the history up to the version that request created) without opening a
+     * transaction. Recently processed keys are checked in memory first, then in the
+     * memberUpdateKey collection inside the transaction so concurrent retries cannot both commit.
+     * A hash of the update payload is stored with the key, so reusing a key for a different update is rejected
+     * 
      * @param newMember The updated member information
+     * @param idempotencyKey Client supplied key identifying the update, or null to always apply it
      * @return List of all versions of the member record
+     * @throws IdempotencyKeyReusedException if the idempotency key was already used for another member or payload
      */
     @Override
-    public List<Member> updateMemberKeepHistory(Member newMember) {
+    public List<Member> updateMemberKeepHistory(Member newMember, String idempotencyKey) {
         LOGGER.info("Starting updateMemberKeepHistory for member ID: {}", newMember.getMemberId());
+        // Hashed before the version and date fields are set on newMember
+        String requestHash = requestHash(newMember);
+
+        if (idempotencyKey != null) {
+            ProcessedUpdate cached = processedUpdates.get(idempotencyKey);
+            if (cached != null && !cached.isExpired(idempotencyTtl)) {
+                LOGGER.info("Idempotency key {} already processed, returning stored result", idempotencyKey);
+                return findHistoryUpTo(null, cached.checkedFor(newMember.getMemberId(), requestHash, idempotencyKey));
+            }
+        }
         
+        AtomicReference<ProcessedUpdate> recorded = new AtomicReference<>();
         try (ClientSession clientSession = client.startSession()) {
-            return clientSession.withTransaction(() -> {
+            List<Member> history = clientSession.withTransaction(() -> {
                 LOGGER.info("Inside transaction: Updating member document with memberId {}", newMember.getMemberId());
+                recorded.set(null);
+
+                if (idempotencyKey != null) {
+                    Document stored = processedKeyCollection.find(clientSession, eq("_id", idempotencyKey)).first();
+                    if (stored != null) {
+                        LOGGER.info("Idempotency key {} already processed, returning stored result", idempotencyKey);
+                        ProcessedUpdate processed = ProcessedUpdate.from(stored);
+                        processedUpdates.put(idempotencyKey, processed);
+                        return findHistoryUpTo(clientSession, processed.checkedFor(newMember.getMemberId(), requestHash, idempotencyKey));
+                    }
+                }
                 
                 //building key value filters
                 Bson memberQuery = eq("memberId", newMember.getMemberId());
@@ -113,6 +196,7 @@ public class MongoDBMemberRepository implements MemberRepository {
                 LOGGER.debug("Finding and updating current member document");
                 //update the original member record and return the document before change
                 Member originalMemberDocument = memberCollection.findOneAndUpdate(
+                        clientSession,
                         currentQuery,
                         new Document("$set", updates),
                         new com.mongodb.client.model.FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE)
@@ -121,30 +205,93 @@ public class MongoDBMemberRepository implements MemberRepository {
                 // Check if originalMemberDocument is null and handle it
                 if (originalMemberDocument == null) {
                     LOGGER.info("No current member found with ID: {}. Creating new member.", newMember.getMemberId());
-                    return List.of(this.save(newMember));
+                    newMember.setVersion(1);
+                } else {
+                    newMember.setVersion(originalMemberDocument.getVersion() + 1);
                 }
 
                 // Set common fields on the new document for insert into database
                 LOGGER.debug("Setting version and date fields on new document");
-                newMember.setVersion(originalMemberDocument.getVersion() + 1);
                 newMember.setEffStartDate(LocalDate.now());
                 newMember.setEffEndDate(LocalDate.of(2099, 12, 31));
                 newMember.setCurrInd("Y");
                 
                 LOGGER.debug("Inserting updated member document");
-                memberCollection.insertOne(newMember);
+                memberCollection.insertOne(clientSession, newMember);
+
+                if (idempotencyKey != null) {
+                    LOGGER.debug("Recording idempotency key {}", idempotencyKey);
+                    ProcessedUpdate processed = new ProcessedUpdate(newMember.getMemberId(), newMember.getVersion(), requestHash, new Date());
+                    processedKeyCollection.insertOne(clientSession, processed.toDocument(idempotencyKey));
+                    recorded.set(processed);
+                }
 
                 // Return all versions of the document
                 // This is done for illastrative purposes only for what the new history looks like.
                 LOGGER.debug("Retrieving all versions of member document");
-                return memberCollection.find(memberQuery).into(new ArrayList<>());
+                return readHistory(clientSession, newMember.getMemberId(), null);
             }, txnOptions);
+
+            // Only cache once the transaction has committed
+            if (recorded.get() != null) {
+                processedUpdates.put(idempotencyKey, recorded.get());
+            }
+            return history;
+        } catch (IdempotencyKeyReusedException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Error in updateMemberKeepHistory: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to update member: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Rebuilds the result of an already processed update: every version of the member
+     * up to and including the version that update created
+     * 
+     * @param clientSession The transaction session, or null to read outside a transaction
+     * @param processed The stored outcome of the processed update
+     * @return The member history as of the processed update
+     */
+    private List<Member> findHistoryUpTo(ClientSession clientSession, ProcessedUpdate processed) {
+        return readHistory(clientSession, processed.memberId(), processed.version());
+    }
+
+    /**
+     * Reads the versions of a member from both the member collection and the compacted history buckets
+     * The member collection is read first: compaction moves versions into buckets, so a compaction
+     * committing between the two reads can at worst show a version twice (removed by version number)
+     * but never hide it
+     * 
+     * @param clientSession The transaction session, or null to read outside a transaction
+     * @param memberId The unique identifier for the member
+     * @param maxVersion Highest version to include, or null for all versions
+     * @return The member versions ordered from oldest to newest
+     */
+    private List<Member> readHistory(ClientSession clientSession, String memberId, Integer maxVersion) {
+        Map<Integer, Member> byVersion = new TreeMap<>();
+        Bson liveQuery = maxVersion == null
+                ? eq("memberId", memberId)
+                : and(eq("memberId", memberId), lte("version", maxVersion));
+        find(clientSession, memberCollection, liveQuery).forEach(member -> byVersion.put(member.getVersion(), member));
+
+        Bson bucketQuery = maxVersion == null
+                ? eq("memberId", memberId)
+                : and(eq("memberId", memberId), lte("minVersion", maxVersion));
+        for (Document bucket : find(clientSession, bucketCollection, bucketQuery)) {
+            for (Member member : MemberHistoryBuckets.fromBucket(bucket)) {
+                if (maxVersion == null || member.getVersion() <= maxVersion) {
+                    byVersion.putIfAbsent(member.getVersion(), member);
+                }
+            }
+        }
+        return new ArrayList<>(byVersion.values());
+    }
+
+    private static <T> FindIterable<T> find(ClientSession clientSession, MongoCollection<T> collection, Bson query) {
+        return clientSession == null ? collection.find(query) : collection.find(clientSession, query);
+    }
+
     /**
      * Retrieves the current active member record by member ID
      * Only returns the record with currInd="Y" (active record)
@@ -160,5 +307,258 @@ public class MongoDBMemberRepository implements MemberRepository {
         );
         return memberCollection.find(query, Member.class).first();
     }
-}
 
+    /**
+     * Checks whether any version of a member record exists
+     * The current version is never compacted, so only the member collection needs to be checked
+     * 
+     * @param memberId The unique identifier for the member
+     * @return true if the member has at least one version
+     */
+    @Override
+    public boolean memberExists(String memberId) {
+        return rawMemberCollection.find(eq("memberId", memberId)).projection(new Document("_id", 1)).first() != null;
+    }
+
+    /**
+     * Retrieves every version of a member record ordered from oldest to newest
+     * Versions moved into history buckets by compaction are expanded back into standalone records
+     * 
+     * @param memberId The unique identifier for the member
+     * @return All versions of the member record, empty if the member does not exist
+     */
+    @Override
+    public List<Member> getMemberHistory(String memberId) {
+        return readHistory(null, memberId, null);
+    }
+
+    /**
+     * Streams every version of a member record as raw BSON, ordered from oldest to newest
+     * Documents in the member collection are handed over exactly as the driver received them
+     * from the server, skipping the decode into Member and any re-encoding on the way out.
+     * Versions held in history buckets are expanded and encoded as standalone member documents.
+     * Buckets are sent first, in month order, followed by the member collection in version order.
+     * Both are read from one snapshot, so a compaction running meanwhile can neither hide a version
+     * nor send it twice, and neither read is buffered in memory
+     * 
+     * @param memberId The unique identifier for the member
+     * @param consumer Receives each raw document in version order
+     */
+    @Override
+    public void streamMemberHistoryRaw(String memberId, Consumer<RawBsonDocument> consumer) {
+        try (ClientSession snapshot = client.startSession(ClientSessionOptions.builder().snapshot(true).build())) {
+            int lastVersion = 0;
+            // The consumer may throw (e.g. the client disconnected), so both cursors are closed explicitly
+            try (MongoCursor<Document> buckets = bucketCollection.find(snapshot, eq("memberId", memberId))
+                    .sort(ascending("month")).iterator()) {
+                while (buckets.hasNext()) {
+                    for (Member member : MemberHistoryBuckets.fromBucket(buckets.next())) {
+                        if (member.getVersion() > lastVersion) {
+                            consumer.accept(new RawBsonDocument(member, memberCodec));
+                            lastVersion = member.getVersion();
+                        }
+                    }
+                }
+            }
+
+            try (MongoCursor<RawBsonDocument> cursor = rawMemberCollection.find(snapshot, eq("memberId", memberId))
+                    .sort(ascending("version")).iterator()) {
+                while (cursor.hasNext()) {
+                    RawBsonDocument document = cursor.next();
+                    // Skip versions already sent from a bucket
+                    if (document.getInt32("version").getValue() > lastVersion) {
+                        consumer.accept(document);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the version of a member record that was in effect on a given date
+     * A version is in effect from its effStartDate up to, but not including, its effEndDate.
+     * When several versions were created on the same day the last one wins
+     * 
+     * @param memberId The unique identifier for the member
+     * @param asOf The date to look up
+     * @return The member version in effect on that date, or null if there was none
+     */
+    @Override
+    public Member getMemberAsOf(String memberId, LocalDate asOf) {
+        Member effective = memberCollection.find(and(
+                        eq("memberId", memberId),
+                        lte("effStartDate", asOf),
+                        gt("effEndDate", asOf)))
+                .sort(descending("version"))
+                .first();
+
+        Bson bucketQuery = and(
+                eq("memberId", memberId),
+                lte("firstEffStartDate", asOf),
+                gt("lastEffEndDate", asOf));
+        for (Document bucket : bucketCollection.find(bucketQuery)) {
+            for (Member member : MemberHistoryBuckets.fromBucket(bucket)) {
+                boolean inEffect = !member.getEffStartDate().isAfter(asOf) && member.getEffEndDate().isAfter(asOf);
+                if (inEffect && (effective == null || member.getVersion() > effective.getVersion())) {
+                    effective = member;
+                }
+            }
+        }
+        return effective;
+    }
+
+    /**
+     * Finds members that have closed versions starting before the cutoff still stored as standalone documents
+     * 
+     * @param cutoff Versions with an effStartDate before this date are eligible for compaction
+     * @param maxMembers Maximum number of member IDs to return
+     * @return Member IDs with versions to compact
+     */
+    @Override
+    public List<String> findMembersToCompact(LocalDate cutoff, int maxMembers) {
+        return memberCollection.aggregate(List.of(
+                        match(and(eq("currInd", "N"), lt("effStartDate", cutoff))),
+                        group("$memberId"),
+                        limit(maxMembers)), Document.class)
+                .map(document -> document.getString("_id"))
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Moves a member's closed versions starting before the cutoff into monthly history buckets
+     * Uses a MongoDB transaction to:
+     * 1. Merge the versions into the bucket for their effStartDate month (creating it if needed)
+     * 2. Delete the standalone version documents
+     * Closed versions never change again, so compaction does not conflict with updates to the member
+     * 
+     * @param memberId The unique identifier for the member
+     * @param cutoff Versions with an effStartDate before this date are compacted
+     * @return The number of versions moved into buckets
+     */
+    @Override
+    public int compactMemberHistory(String memberId, LocalDate cutoff) {
+        LOGGER.debug("Compacting history for member ID: {}", memberId);
+
+        try (ClientSession clientSession = client.startSession()) {
+            return clientSession.withTransaction(() -> {
+                List<Member> closed = memberCollection.find(clientSession, and(
+                                eq("memberId", memberId),
+                                eq("currInd", "N"),
+                                lt("effStartDate", cutoff)))
+                        .into(new ArrayList<>());
+                if (closed.isEmpty()) {
+                    return 0;
+                }
+
+                Map<YearMonth, List<Member>> byMonth = closed.stream()
+                        .collect(Collectors.groupingBy(member -> YearMonth.from(member.getEffStartDate())));
+                for (Map.Entry<YearMonth, List<Member>> month : byMonth.entrySet()) {
+                    Bson bucketQuery = and(eq("memberId", memberId), eq("month", month.getKey().toString()));
+                    List<Member> versions = new ArrayList<>(month.getValue());
+
+                    Document existingBucket = bucketCollection.find(clientSession, bucketQuery).first();
+                    if (existingBucket != null) {
+                        versions.addAll(MemberHistoryBuckets.fromBucket(existingBucket));
+                    }
+                    bucketCollection.replaceOne(clientSession, bucketQuery,
+                            MemberHistoryBuckets.toBucket(memberId, month.getKey(), versions),
+                            new ReplaceOptions().upsert(true));
+                }
+
+                memberCollection.deleteMany(clientSession, in("_id", MemberHistoryBuckets.ids(closed)));
+                return closed.size();
+            }, txnOptions);
+        } catch (Exception e) {
+            LOGGER.error("Error compacting history for member {}: {}", memberId, e.getMessage(), e);
+            throw new RuntimeException("Failed to compact member history: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reports document count, data size, storage size and index size of the member
+     * and history bucket collections
+     * 
+     * @return Storage statistics per collection
+     */
+    @Override
+    public List<StorageStats> getStorageStats() {
+        return List.of(storageStats(memberCollection), storageStats(bucketCollection));
+    }
+
+    private StorageStats storageStats(MongoCollection<?> collection) {
+        StorageStats stats = new StorageStats(collection.getNamespace().getCollectionName());
+        try {
+            Document result = collection.aggregate(List.of(
+                    new Document("$collStats", new Document("storageStats", new Document()))), Document.class).first();
+            if (result != null) {
+                Document storage = result.get("storageStats", Document.class);
+                stats.setDocuments(storage.get("count", Number.class).longValue());
+                stats.setDataSize(storage.get("size", Number.class).longValue());
+                stats.setStorageSize(storage.get("storageSize", Number.class).longValue());
+                stats.setIndexSize(storage.get("totalIndexSize", Number.class).longValue());
+            }
+        } catch (MongoCommandException e) {
+            // The collection does not exist yet, e.g. no buckets have been written
+            LOGGER.debug("No storage statistics for {}: {}", stats.getCollection(), e.getMessage());
+        }
+        return stats;
+    }
+
+    /**
+     * Hashes the client supplied fields of an update, identifying its payload regardless of
+     * the wire format or JSON formatting it arrived in
+     * 
+     * @param member The update payload
+     * @return Hex encoded SHA-256 of the payload fields
+     */
+    static String requestHash(Member member) {
+        StringBuilder payload = new StringBuilder();
+        for (String field : new String[]{member.getMemberId(), member.getFirstName(), member.getLastName(), member.getPrimaryNumber()}) {
+            // Prefix each value so null, "" and values containing the separator all hash differently
+            payload.append(field == null ? "-" : "+" + field.length() + ":" + field).append('\u001f');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(payload.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Outcome of an update recorded against an idempotency key
+     * Stored in the memberUpdateKey collection (expired by a TTL index on createdAt) and cached in memory
+     */
+    private record ProcessedUpdate(String memberId, int version, String requestHash, Date createdAt) {
+
+        static ProcessedUpdate from(Document document) {
+            return new ProcessedUpdate(document.getString("memberId"), document.getInteger("version"),
+                    document.getString("requestHash"), document.getDate("createdAt"));
+        }
+
+        Document toDocument(String idempotencyKey) {
+            return new Document("_id", idempotencyKey)
+                    .append("memberId", memberId)
+                    .append("version", version)
+                    .append("requestHash", requestHash)
+                    .append("createdAt", createdAt);
+        }
+
+        boolean isExpired(Duration ttl) {
+            return createdAt.toInstant().plus(ttl).isBefore(new Date().toInstant());
+        }
+
+        /**
+         * Guards against a client reusing one idempotency key for a different member or a different update
+         */
+        ProcessedUpdate checkedFor(String memberId, String requestHash, String idempotencyKey) {
+            if (!this.memberId.equals(memberId)) {
+                throw new IdempotencyKeyReusedException("Idempotency key " + idempotencyKey + " was already used for another member");
+            }
+            if (!this.requestHash.equals(requestHash)) {
+                throw new IdempotencyKeyReusedException("Idempotency key " + idempotencyKey + " was already used for a different update");
+            }
+            return this;
+        }
+    }
+}
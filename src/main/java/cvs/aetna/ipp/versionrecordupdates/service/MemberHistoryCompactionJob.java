@@ -0,0 +1,40 @@
+package cvs.aetna.ipp.versionrecordupdates.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MemberHistoryCompactionJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemberHistoryCompactionJob.class);
+
+    private final MemberService memberService;
+
+    @Value("${member.compaction.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Constructor that initializes the job with the member service
+     * 
+     * @param memberService The service performing the compaction
+     */
+    public MemberHistoryCompactionJob(MemberService memberService) {
+        this.memberService = memberService;
+    }
+
+    /**
+     * Periodically rolls closed versions of older months into monthly history buckets
+     * Runs on the member.compaction.cron schedule; disabled when the cron is "-" (the default)
+     * Failures are logged and retried on the next run
+     */
+    @Scheduled(cron = "${member.compaction.cron:-}")
+    public void compactHistory() {
+        try {
+            memberService.compactHistory(batchSize);
+        } catch (Exception e) {
+            LOGGER.error("Scheduled history compaction failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package cvs.aetna.ipp.versionrecordupdates.service;
 
+import cvs.aetna.ipp.versionrecordupdates.model.CompactionReport;
 import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import org.bson.RawBsonDocument;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberService {
     public Member insertMember(Member member);
 
-    public List<Member> updateMember(Member updatedMember);
+    public List<Member> updateMember(Member updatedMember, String idempotencyKey);
     
     public Member getMemberById(String memberId);
+
+    public boolean memberExists(String memberId);
+
+    public List<Member> getMemberHistory(String memberId);
+
+    public void streamMemberHistoryRaw(String memberId, Consumer<RawBsonDocument> consumer);
+
+    public Member getMemberAsOf(String memberId, LocalDate asOf);
+
+    public CompactionReport compactHistory(int maxMembers);
 }
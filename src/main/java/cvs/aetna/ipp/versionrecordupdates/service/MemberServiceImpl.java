@@ -1,18 +1,33 @@
 package cvs.aetna.ipp.versionrecordupdates.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import cvs.aetna.ipp.versionrecordupdates.model.CompactionReport;
 import cvs.aetna.ipp.versionrecordupdates.model.Member;
 import cvs.aetna.ipp.versionrecordupdates.repositories.MemberRepository;
 
 @Service
 public class MemberServiceImpl implements MemberService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemberServiceImpl.class);
+    private static final int LATENCY_SAMPLE_SIZE = 20;
 
     @Autowired
     private MemberRepository memberRepository;
 
+    // Number of most recent months (including the current one) whose versions are left uncompacted
+    @Value("${member.compaction.open-months:1}")
+    private int compactionOpenMonths;
+
 
     /**
      * Inserts a new member record into the database
@@ -29,11 +44,14 @@ public class MemberServiceImpl implements MemberService {
      * Updates an existing member record while preserving history
      * This method creates a new version of the member record and marks the previous version as inactive
      * 
+     * Retries carrying an already processed idempotency key are answered with the original result
+     * 
      * @param updatedMember The updated member information
+     * @param idempotencyKey Client supplied key identifying the update, or null if none was sent
      * @return List of all versions of the member (including the new version)
      */
-    public List<Member> updateMember(Member updatedMember) {
-        return memberRepository.updateMemberKeepHistory(updatedMember);
+    public List<Member> updateMember(Member updatedMember, String idempotencyKey) {
+        return memberRepository.updateMemberKeepHistory(updatedMember, idempotencyKey);
     }
     
     /**
@@ -47,4 +65,97 @@ public class MemberServiceImpl implements MemberService {
     public Member getMemberById(String memberId) {
         return memberRepository.getMemberByID(memberId);
     }
+
+    /**
+     * Checks whether any version of a member record exists
+     * 
+     * @param memberId The unique identifier for the member
+     * @return true if the member has at least one version
+     */
+    @Override
+    public boolean memberExists(String memberId) {
+        return memberRepository.memberExists(memberId);
+    }
+
+    /**
+     * Retrieves every version of a member record, oldest first
+     * 
+     * @param memberId The unique identifier for the member
+     * @return All versions of the member, empty if the member does not exist
+     */
+    @Override
+    public List<Member> getMemberHistory(String memberId) {
+        return memberRepository.getMemberHistory(memberId);
+    }
+
+    /**
+     * Streams every version of a member record as undecoded BSON, oldest first
+     * 
+     * @param memberId The unique identifier for the member
+     * @param consumer Receives each raw document as it is read from the cursor
+     */
+    @Override
+    public void streamMemberHistoryRaw(String memberId, Consumer<RawBsonDocument> consumer) {
+        memberRepository.streamMemberHistoryRaw(memberId, consumer);
+    }
+
+    /**
+     * Retrieves the version of a member record that was in effect on a given date
+     * 
+     * @param memberId The unique identifier for the member
+     * @param asOf The date to look up
+     * @return The member version in effect on that date, or null if there was none
+     */
+    @Override
+    public Member getMemberAsOf(String memberId, LocalDate asOf) {
+        return memberRepository.getMemberAsOf(memberId, asOf);
+    }
+
+    /**
+     * Rolls closed versions of older months into monthly history buckets
+     * Records storage and index sizes before and after, and the average history read
+     * latency for a sample of the compacted members before and after their compaction
+     * 
+     * @param maxMembers Maximum number of members to compact in this run
+     * @return A report of what was compacted and its effect
+     */
+    @Override
+    public CompactionReport compactHistory(int maxMembers) {
+        CompactionReport report = new CompactionReport();
+        report.setCutoff(YearMonth.now().minusMonths(Math.max(compactionOpenMonths, 1) - 1L).atDay(1));
+        report.setStorageBefore(memberRepository.getStorageStats());
+
+        List<String> memberIds = memberRepository.findMembersToCompact(report.getCutoff(), maxMembers);
+        List<String> sample = memberIds.subList(0, Math.min(LATENCY_SAMPLE_SIZE, memberIds.size()));
+        report.setHistoryReadMicrosBefore(averageHistoryReadMicros(sample));
+
+        int versionsCompacted = 0;
+        for (String memberId : memberIds) {
+            versionsCompacted += memberRepository.compactMemberHistory(memberId, report.getCutoff());
+        }
+        report.setMembersCompacted(memberIds.size());
+        report.setVersionsCompacted(versionsCompacted);
+
+        report.setHistoryReadMicrosAfter(averageHistoryReadMicros(sample));
+        report.setStorageAfter(memberRepository.getStorageStats());
+        LOGGER.info("Compacted {} versions of {} members before {}; history read {} us -> {} us",
+                versionsCompacted, memberIds.size(), report.getCutoff(),
+                report.getHistoryReadMicrosBefore(), report.getHistoryReadMicrosAfter());
+        return report;
+    }
+
+    // Each member is read once untimed first so both measurements run against warm caches
+    private long averageHistoryReadMicros(List<String> memberIds) {
+        if (memberIds.isEmpty()) {
+            return 0;
+        }
+        long totalNanos = 0;
+        for (String memberId : memberIds) {
+            memberRepository.getMemberHistory(memberId);
+            long start = System.nanoTime();
+            memberRepository.getMemberHistory(memberId);
+            totalNanos += System.nanoTime() - start;
+        }
+        return TimeUnit.NANOSECONDS.toMicros(totalNanos / memberIds.size());
+    }
 }
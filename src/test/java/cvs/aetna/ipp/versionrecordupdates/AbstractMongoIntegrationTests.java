@@ -0,0 +1,41 @@
+package cvs.aetna.ipp.versionrecordupdates;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Base class for tests that run the application against a real MongoDB
+ * Transactions need a replica set, so one single-node replica set container is started on first use
+ * and shared by every integration test class. Tests are skipped when Docker is not available.
+ * Each test should work on its own memberIds since the database is not cleaned between tests
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class AbstractMongoIntegrationTests {
+
+    protected static final int MIN_POOL_SIZE = 2;
+
+    private static MongoDBContainer mongoContainer;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer().getReplicaSetUrl("memberdb"));
+        // Exercises the startup pool warm-up, see MongoConnectionPoolWarmerIntegrationTests
+        registry.add("mongodb.client.pool.min-size", () -> MIN_POOL_SIZE);
+    }
+
+    // Left running for the rest of the test run; Testcontainers removes it when the JVM exits
+    private static synchronized MongoDBContainer mongoContainer() {
+        if (mongoContainer == null) {
+            mongoContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+            mongoContainer.start();
+        }
+        return mongoContainer;
+    }
+}
@@ -0,0 +1,27 @@
+package cvs.aetna.ipp.versionrecordupdates;
+
+import com.mongodb.MongoCompressor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MongoDBConfigurationTests {
+
+    @Test
+    void createCompressorsMapsNamesInOrderOfPreference() {
+        List<MongoCompressor> compressors = MongoDBConfiguration.createCompressors(List.of("zstd", " Snappy ", "ZLIB"));
+
+        assertEquals(List.of("zstd", "snappy", "zlib"), compressors.stream().map(MongoCompressor::getName).toList());
+    }
+
+    @Test
+    void createCompressorsRejectsUnknownNames() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> MongoDBConfiguration.createCompressors(List.of("zlib", "lz4")));
+
+        assertEquals("Unsupported MongoDB compressor: lz4", e.getMessage());
+    }
+}
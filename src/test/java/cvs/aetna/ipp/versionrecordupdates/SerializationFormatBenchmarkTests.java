@@ -0,0 +1,175 @@
+package cvs.aetna.ipp.versionrecordupdates;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import cvs.aetna.ipp.versionrecordupdates.config.JacksonConfig;
+import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import org.bson.ByteBuf;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares bytes on the wire and serialization CPU for the response formats served by the API
+ * Uses the same ObjectMappers as the JSON, Smile and CBOR message converters, without MongoDB or a web server.
+ * The numbers are printed for a rough side-by-side comparison. Only runs with the benchmark Maven profile
+ */
+@Tag("benchmark")
+@SpringBootTest(classes = {JacksonAutoConfiguration.class, JacksonConfig.class})
+class SerializationFormatBenchmarkTests {
+
+    private static final int HISTORY_DEPTH = 200;
+    private static final int WARMUP_ITERATIONS = 500;
+    private static final int MEASURED_ITERATIONS = 1_000;
+
+    // The mapper Spring Boot's JSON converter is built with
+    @Autowired
+    private ObjectMapper jsonMapper;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Test
+    void compareMemberHistoryFormats() throws IOException {
+        List<Member> history = buildHistory(HISTORY_DEPTH);
+
+        System.out.printf("%-6s %10s %10s %14s %14s%n", "format", "bytes", "gzipBytes", "encodeNs/op", "decodeNs/op");
+        for (ObjectMapper mapper : List.of(jsonMapper, smileConverter.getObjectMapper(), cborConverter.getObjectMapper())) {
+            benchmarkJackson(mapper, history);
+        }
+        benchmarkBson(history);
+    }
+
+    private void benchmarkJackson(ObjectMapper mapper, List<Member> history) throws IOException {
+        JavaType listType = mapper.getTypeFactory().constructCollectionType(List.class, Member.class);
+
+        byte[] encoded = mapper.writeValueAsBytes(history);
+        List<Member> decoded = mapper.readValue(encoded, listType);
+        assertEquals(history.size(), decoded.size());
+        assertEquals(history.get(0).getId(), decoded.get(0).getId());
+        assertEquals(history.get(0).getEffStartDate(), decoded.get(0).getEffStartDate());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(history), listType);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            encoded = mapper.writeValueAsBytes(history);
+        }
+        long encodeNs = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            mapper.readValue(encoded, listType);
+        }
+        long decodeNs = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+
+        report(mapper.getFactory().getFormatName(), encoded, encodeNs, decodeNs);
+    }
+
+    /**
+     * BSON documents are concatenated the same way the raw history endpoint streams them
+     * The decode column is what a client pays; the server itself never decodes raw history
+     */
+    private void benchmarkBson(List<Member> history) throws IOException {
+        CodecRegistry codecRegistry = fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+        Codec<Member> codec = codecRegistry.get(Member.class);
+
+        byte[] encoded = encodeBson(history, codec);
+        assertEquals(history.get(0).getId(), new RawBsonDocument(history.get(0), codec).decode(codec).getId());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            decodeBson(encodeBson(history, codec), codec);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            encoded = encodeBson(history, codec);
+        }
+        long encodeNs = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            decodeBson(encoded, codec);
+        }
+        long decodeNs = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+
+        report("BSON", encoded, encodeNs, decodeNs);
+    }
+
+    private byte[] encodeBson(List<Member> history, Codec<Member> codec) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Member member : history) {
+            ByteBuf buffer = new RawBsonDocument(member, codec).getByteBuffer();
+            out.write(buffer.array(), buffer.position(), buffer.remaining());
+        }
+        return out.toByteArray();
+    }
+
+    private List<Member> decodeBson(byte[] encoded, Codec<Member> codec) {
+        List<Member> members = new ArrayList<>();
+        int offset = 0;
+        while (offset < encoded.length) {
+            int length = (encoded[offset] & 0xff)
+                    | (encoded[offset + 1] & 0xff) << 8
+                    | (encoded[offset + 2] & 0xff) << 16
+                    | (encoded[offset + 3] & 0xff) << 24;
+            members.add(new RawBsonDocument(encoded, offset, length).decode(codec));
+            offset += length;
+        }
+        return members;
+    }
+
+    private void report(String format, byte[] encoded, long encodeNs, long decodeNs) throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(encoded);
+        }
+        System.out.printf("%-6s %10d %10d %14d %14d%n", format, encoded.length, gzipped.size(), encodeNs, decodeNs);
+    }
+
+    private List<Member> buildHistory(int depth) {
+        List<Member> history = new ArrayList<>();
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        for (int version = 1; version <= depth; version++) {
+            Member member = new Member();
+            member.setId(new ObjectId());
+            member.setMemberId("12345681");
+            member.setFirstName("scott");
+            member.setLastName("capista");
+            member.setPrimaryNumber(String.valueOf(4015550000L + version));
+            member.setVersion(version);
+            member.setEffStartDate(start.plusDays(version - 1));
+            member.setEffEndDate(version == depth ? LocalDate.of(2099, 12, 31) : start.plusDays(version));
+            member.setCurrInd(version == depth ? "Y" : "N");
+            history.add(member);
+        }
+        return history;
+    }
+}
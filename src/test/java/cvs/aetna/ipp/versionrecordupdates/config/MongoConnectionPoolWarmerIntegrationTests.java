@@ -0,0 +1,32 @@
+package cvs.aetna.ipp.versionrecordupdates.config;
+
+import cvs.aetna.ipp.versionrecordupdates.AbstractMongoIntegrationTests;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoConnectionPoolWarmerIntegrationTests extends AbstractMongoIntegrationTests {
+
+    @Autowired
+    private MongoConnectionPoolWarmer poolWarmer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void poolsAreFullOnceTheContextIsUp() {
+        assertTrue(poolWarmer.isWarm());
+
+        Collection<Gauge> poolSizes = meterRegistry.find("mongodb.driver.pool.size").gauges();
+        assertFalse(poolSizes.isEmpty());
+        for (Gauge poolSize : poolSizes) {
+            assertTrue(poolSize.value() >= MIN_POOL_SIZE, () -> poolSize.getId() + " has " + poolSize.value() + " connections");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package cvs.aetna.ipp.versionrecordupdates.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterConnectionMode;
+import com.mongodb.connection.ClusterDescription;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ClusterType;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerConnectionState;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.ClusterDescriptionChangedEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionReadyEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoConnectionPoolWarmerTests {
+
+    private static final int MIN_SIZE = 2;
+    private static final ClusterId CLUSTER_ID = new ClusterId();
+    private static final ServerAddress PRIMARY = new ServerAddress("mongo-0", 27017);
+    private static final ServerAddress SECONDARY = new ServerAddress("mongo-1", 27017);
+    private static final ServerAddress ARBITER = new ServerAddress("mongo-2", 27017);
+
+    private MongoClientProperties.Pool properties;
+    private MongoConnectionPoolWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MongoClientProperties.Pool();
+        warmer = new MongoConnectionPoolWarmer(properties);
+        warmer.setMinSize(MIN_SIZE);
+    }
+
+    @Test
+    void waitsUntilEveryServerPoolIsFull() throws Exception {
+        discover(server(PRIMARY, ServerType.REPLICA_SET_PRIMARY), server(SECONDARY, ServerType.UNKNOWN));
+        fill(PRIMARY, MIN_SIZE);
+
+        CompletableFuture<Boolean> warm = CompletableFuture.supplyAsync(() -> warmer.awaitWarm(Duration.ofSeconds(10)));
+        // The secondary's pool has not been created yet
+        assertThrows(TimeoutException.class, () -> warm.get(200, TimeUnit.MILLISECONDS));
+
+        fill(SECONDARY, MIN_SIZE - 1);
+        assertThrows(TimeoutException.class, () -> warm.get(200, TimeUnit.MILLISECONDS));
+
+        ready(SECONDARY);
+        assertTrue(warm.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givesUpAfterTheTimeout() {
+        discover(server(PRIMARY, ServerType.REPLICA_SET_PRIMARY), server(SECONDARY, ServerType.REPLICA_SET_SECONDARY));
+        fill(PRIMARY, MIN_SIZE);
+        fill(SECONDARY, MIN_SIZE - 1);
+
+        long start = System.nanoTime();
+        assertFalse(warmer.awaitWarm(Duration.ofMillis(200)));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void notWarmUntilTheClusterIsDiscovered() {
+        fill(PRIMARY, MIN_SIZE);
+        assertFalse(warmer.isWarm());
+
+        discover(server(PRIMARY, ServerType.REPLICA_SET_PRIMARY));
+        assertTrue(warmer.isWarm());
+    }
+
+    @Test
+    void closedConnectionsNoLongerCount() {
+        discover(server(PRIMARY, ServerType.REPLICA_SET_PRIMARY));
+        fill(PRIMARY, MIN_SIZE);
+        assertTrue(warmer.isWarm());
+
+        warmer.connectionClosed(new ConnectionClosedEvent(connectionId(PRIMARY), ConnectionClosedEvent.Reason.IDLE));
+        assertFalse(warmer.isWarm());
+    }
+
+    @Test
+    void arbitersAreNotWaitedFor() {
+        discover(server(PRIMARY, ServerType.REPLICA_SET_PRIMARY), server(ARBITER, ServerType.REPLICA_SET_ARBITER));
+        fill(PRIMARY, MIN_SIZE);
+
+        assertTrue(warmer.isWarm());
+    }
+
+    @Test
+    void doesNotWaitWhenPrewarmIsDisabled() {
+        properties.setPrewarm(false);
+        properties.setPrewarmTimeout(Duration.ofSeconds(30));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), warmer::afterSingletonsInstantiated);
+    }
+
+    private void discover(ServerDescription... servers) {
+        ClusterDescription previous = new ClusterDescription(ClusterConnectionMode.MULTIPLE, ClusterType.UNKNOWN, List.of());
+        ClusterDescription current = new ClusterDescription(ClusterConnectionMode.MULTIPLE, ClusterType.REPLICA_SET, List.of(servers));
+        warmer.clusterDescriptionChanged(new ClusterDescriptionChangedEvent(CLUSTER_ID, current, previous));
+    }
+
+    private void fill(ServerAddress address, int connections) {
+        warmer.connectionPoolCreated(new ConnectionPoolCreatedEvent(new ServerId(CLUSTER_ID, address),
+                ConnectionPoolSettings.builder().minSize(MIN_SIZE).build()));
+        for (int i = 0; i < connections; i++) {
+            ready(address);
+        }
+    }
+
+    private void ready(ServerAddress address) {
+        warmer.connectionReady(new ConnectionReadyEvent(connectionId(address), 0));
+    }
+
+    private static ConnectionId connectionId(ServerAddress address) {
+        return new ConnectionId(new ServerId(CLUSTER_ID, address));
+    }
+
+    private static ServerDescription server(ServerAddress address, ServerType type) {
+        boolean reached = type != ServerType.UNKNOWN;
+        return ServerDescription.builder()
+                .address(address)
+                .type(type)
+                .state(reached ? ServerConnectionState.CONNECTED : ServerConnectionState.CONNECTING)
+                .ok(reached)
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package cvs.aetna.ipp.versionrecordupdates.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import cvs.aetna.ipp.versionrecordupdates.config.JacksonConfig;
+import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import cvs.aetna.ipp.versionrecordupdates.service.MemberService;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(MemberController.class)
+@Import(JacksonConfig.class)
+class MemberControllerContentNegotiationTests {
+
+    private static final String MEMBER_ID = "12345681";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private MemberService memberService;
+
+    private Member member;
+
+    @BeforeEach
+    void setUp() {
+        member = new Member();
+        member.setId(new ObjectId());
+        member.setMemberId(MEMBER_ID);
+        member.setFirstName("scott");
+        member.setLastName("capista");
+        member.setPrimaryNumber("4015551234");
+        member.setVersion(1);
+        member.setEffStartDate(LocalDate.of(2025, 3, 1));
+        member.setEffEndDate(LocalDate.of(2099, 12, 31));
+        member.setCurrInd("Y");
+        when(memberService.getMemberHistory(MEMBER_ID)).thenReturn(List.of(member));
+    }
+
+    @Test
+    void historyDefaultsToJsonWithoutAcceptHeader() throws Exception {
+        mockMvc.perform(get("/members/history/" + MEMBER_ID))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].id").value(member.getId().toString()))
+                .andExpect(jsonPath("$[0].effStartDate").value("2025-03-01"));
+    }
+
+    @Test
+    void historyDefaultsToJsonForWildcardAcceptHeader() throws Exception {
+        mockMvc.perform(get("/members/history/" + MEMBER_ID).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void historyReturnsCborWhenRequested() throws Exception {
+        byte[] body = mockMvc.perform(get("/members/history/" + MEMBER_ID).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertFirstMember(new ObjectMapper(new CBORFactory()).readTree(body));
+    }
+
+    @Test
+    void historyReturnsSmileWhenRequested() throws Exception {
+        MediaType smile = MediaType.parseMediaType(MemberController.APPLICATION_SMILE_VALUE);
+        byte[] body = mockMvc.perform(get("/members/history/" + MEMBER_ID).accept(smile))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(smile))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertFirstMember(new ObjectMapper(new SmileFactory()).readTree(body));
+    }
+
+    @Test
+    void rawHistoryStreamsBsonWithoutAcceptHeader() throws Exception {
+        RawBsonDocument document = new RawBsonDocument(new BsonDocument("memberId", new BsonString(MEMBER_ID))
+                .append("version", new BsonInt32(1)), new BsonDocumentCodec());
+        doAnswer(invocation -> {
+            Consumer<RawBsonDocument> consumer = invocation.getArgument(1);
+            consumer.accept(document);
+            return null;
+        }).when(memberService).streamMemberHistoryRaw(eq(MEMBER_ID), any());
+        when(memberService.memberExists(MEMBER_ID)).thenReturn(true);
+
+        MvcResult result = mockMvc.perform(get("/members/rawHistory/" + MEMBER_ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MemberController.APPLICATION_BSON_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ByteBuffer expected = document.getByteBuffer().asNIO();
+        byte[] expectedBytes = new byte[expected.remaining()];
+        expected.get(expectedBytes);
+        assertArrayEquals(expectedBytes, body);
+    }
+
+    @Test
+    void rawHistoryReturnsNotFoundForUnknownMember() throws Exception {
+        mockMvc.perform(get("/members/rawHistory/unknown"))
+                .andExpect(status().isNotFound());
+
+        verify(memberService, never()).streamMemberHistoryRaw(eq("unknown"), any());
+    }
+
+    // Checks the ObjectId module and date handling apply to the binary formats as they do to JSON
+    private void assertFirstMember(JsonNode history) {
+        assertEquals(member.getId().toString(), history.get(0).get("id").asText());
+        assertEquals("2025-03-01", history.get(0).get("effStartDate").asText());
+        assertEquals(MEMBER_ID, history.get(0).get("memberId").asText());
+    }
+}
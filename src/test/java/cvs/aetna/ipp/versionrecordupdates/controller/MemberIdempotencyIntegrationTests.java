@@ -0,0 +1,135 @@
+package cvs.aetna.ipp.versionrecordupdates.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cvs.aetna.ipp.versionrecordupdates.AbstractMongoIntegrationTests;
+import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import cvs.aetna.ipp.versionrecordupdates.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MemberIdempotencyIntegrationTests extends AbstractMongoIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MemberService memberService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void retryReturnsStoredHistoryWithoutCreatingAVersion() throws Exception {
+        String memberId = insertMember();
+        String key = UUID.randomUUID().toString();
+
+        String first = update(memberId, "renamed", key)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+
+        update(memberId, "renamed", key)
+                .andExpect(status().isOk())
+                .andExpect(content().json(first, true));
+
+        assertEquals(2, memberService.getMemberHistory(memberId).size());
+    }
+
+    @Test
+    void concurrentRequestsWithSameKeyCreateOneVersion() throws Exception {
+        String memberId = insertMember();
+        String key = UUID.randomUUID().toString();
+        int requests = 8;
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<List<Member>>> calls = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            calls.add(() -> {
+                start.await();
+                return memberService.updateMember(member(memberId, "concurrent"), key);
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<List<Member>>> results = calls.stream().map(executor::submit).toList();
+            start.countDown();
+            for (Future<List<Member>> result : results) {
+                List<Member> history = result.get();
+                assertEquals(2, history.size());
+                assertEquals(2, history.get(history.size() - 1).getVersion());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2, memberService.getMemberHistory(memberId).size());
+    }
+
+    @Test
+    void keyReusedForAnotherMemberIsRejected() throws Exception {
+        String memberId = insertMember();
+        String otherMemberId = insertMember();
+        String key = UUID.randomUUID().toString();
+
+        update(memberId, "renamed", key).andExpect(status().isOk());
+
+        update(otherMemberId, "renamed", key)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Idempotency key " + key + " was already used for another member"));
+        assertEquals(1, memberService.getMemberHistory(otherMemberId).size());
+    }
+
+    @Test
+    void keyReusedForADifferentUpdateIsRejected() throws Exception {
+        String memberId = insertMember();
+        String key = UUID.randomUUID().toString();
+
+        update(memberId, "renamed", key).andExpect(status().isOk());
+
+        update(memberId, "renamed again", key)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Idempotency key " + key + " was already used for a different update"));
+        assertEquals(2, memberService.getMemberHistory(memberId).size());
+    }
+
+    private String insertMember() {
+        String memberId = UUID.randomUUID().toString();
+        memberService.insertMember(member(memberId, "scott"));
+        return memberId;
+    }
+
+    private ResultActions update(String memberId, String firstName, String key) throws Exception {
+        return mockMvc.perform(post("/members/updateMemberKeepHistory")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(MemberController.IDEMPOTENCY_KEY_HEADER, key)
+                .content(objectMapper.writeValueAsString(member(memberId, firstName))));
+    }
+
+    private static Member member(String memberId, String firstName) {
+        Member member = new Member();
+        member.setMemberId(memberId);
+        member.setFirstName(firstName);
+        member.setLastName("capista");
+        member.setPrimaryNumber("4015551234");
+        return member;
+    }
+}
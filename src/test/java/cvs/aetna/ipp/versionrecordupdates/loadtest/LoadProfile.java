@@ -0,0 +1,78 @@
+package cvs.aetna.ipp.versionrecordupdates.loadtest;
+
+/**
+ * Traffic shape and regression thresholds for MemberLoadTests, read from "loadtest.*" system properties
+ * e.g. ./mvnw -Ploadtest test -Dloadtest.targetRps=500 -Dloadtest.hotMemberSkew=1.2 -Dloadtest.maxP99Ms=150
+ *
+ * @param mongoUri Existing replica set to test against; when blank a single-node replica set is started in Docker
+ * @param mongoImage Docker image used for the single-node replica set
+ * @param warmupSeconds Traffic sent before measuring, to warm the JIT and the connection pool
+ * @param durationSeconds Length of the measured run
+ * @param targetRps Requests per second the generator schedules, independent of how fast responses come back
+ * @param concurrency Maximum number of requests in flight
+ * @param members Number of members seeded before the run; updates and reads pick from these
+ * @param historyDepth Versions each seeded member has before the run starts
+ * @param hotMemberSkew Zipf exponent for picking members; 0 is uniform, above 1 concentrates on a few hot members
+ * @param insertPercent Share of requests inserting a brand new member
+ * @param updatePercent Share of requests updating a seeded member; the remainder read the latest record
+ * @param minThroughputRatio Fail when measured throughput drops below this fraction of targetRps
+ * @param maxP99Ms Fail when the p99 latency across all operations exceeds this
+ * @param maxP999Ms Fail when the p99.9 latency across all operations exceeds this
+ * @param maxErrorRate Fail when the fraction of failed requests exceeds this
+ * @param maxTransactionRetryRate Fail when transaction retries per update exceed this
+ */
+record LoadProfile(
+        String mongoUri,
+        String mongoImage,
+        int warmupSeconds,
+        int durationSeconds,
+        int targetRps,
+        int concurrency,
+        int members,
+        int historyDepth,
+        double hotMemberSkew,
+        int insertPercent,
+        int updatePercent,
+        double minThroughputRatio,
+        double maxP99Ms,
+        double maxP999Ms,
+        double maxErrorRate,
+        double maxTransactionRetryRate) {
+
+    static LoadProfile fromSystemProperties() {
+        LoadProfile profile = new LoadProfile(
+                System.getProperty("loadtest.mongodb.uri", "").trim(),
+                System.getProperty("loadtest.mongodb.image", "mongo:7.0"),
+                Integer.getInteger("loadtest.warmupSeconds", 10),
+                Integer.getInteger("loadtest.durationSeconds", 60),
+                Integer.getInteger("loadtest.targetRps", 200),
+                Integer.getInteger("loadtest.concurrency", 64),
+                Integer.getInteger("loadtest.members", 1_000),
+                Integer.getInteger("loadtest.historyDepth", 5),
+                doubleProperty("loadtest.hotMemberSkew", 1.1),
+                Integer.getInteger("loadtest.insertPercent", 10),
+                Integer.getInteger("loadtest.updatePercent", 30),
+                doubleProperty("loadtest.minThroughputRatio", 0.9),
+                doubleProperty("loadtest.maxP99Ms", 250),
+                doubleProperty("loadtest.maxP999Ms", 1_000),
+                doubleProperty("loadtest.maxErrorRate", 0.01),
+                doubleProperty("loadtest.maxTransactionRetryRate", 0.2));
+
+        if (profile.targetRps <= 0 || profile.concurrency <= 0 || profile.members <= 0 || profile.historyDepth <= 0) {
+            throw new IllegalArgumentException("loadtest.targetRps, concurrency, members and historyDepth must be positive");
+        }
+        if (profile.insertPercent < 0 || profile.updatePercent < 0 || profile.insertPercent + profile.updatePercent > 100) {
+            throw new IllegalArgumentException("loadtest.insertPercent and updatePercent must be between 0 and 100 combined");
+        }
+        return profile;
+    }
+
+    boolean useExternalMongo() {
+        return !mongoUri.isEmpty();
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,304 @@
+package cvs.aetna.ipp.versionrecordupdates.loadtest;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mixed-traffic soak test for the /members endpoints
+ * Seeds members with version history, then sends inserts, updates skewed towards hot members and
+ * latestRecord reads at a fixed rate through the real HTTP stack, and fails when throughput, latency,
+ * error rate or transaction retries regress past the LoadProfile thresholds.
+ * Latency is measured from when each request was scheduled, not when it was sent, so a stalled
+ * server shows up in the percentiles instead of silently lowering the offered load.
+ * Only runs with the loadtest Maven profile; see LoadProfile for the settings
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "mongodb.client.command-metrics=true")
+class MemberLoadTests {
+
+    private static final LoadProfile PROFILE = LoadProfile.fromSystemProperties();
+    private static MongoDBContainer mongoContainer;
+
+    private enum Operation { INSERT, UPDATE, READ }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong insertSequence = new AtomicLong();
+    private final List<String> seededMemberIds = new ArrayList<>();
+
+    /**
+     * Transactions need a replica set, so either point the application at an existing one
+     * or start a single-node replica set container for the duration of the test
+     */
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        if (PROFILE.useExternalMongo()) {
+            registry.add("spring.data.mongodb.uri", PROFILE::mongoUri);
+            return;
+        }
+        mongoContainer = new MongoDBContainer(DockerImageName.parse(PROFILE.mongoImage()));
+        mongoContainer.start();
+        registry.add("spring.data.mongodb.uri", () -> mongoContainer.getReplicaSetUrl("memberdb"));
+    }
+
+    @AfterAll
+    static void stopMongo() {
+        if (mongoContainer != null) {
+            mongoContainer.stop();
+        }
+    }
+
+    @Test
+    void mixedTrafficStaysWithinThresholds() throws InterruptedException {
+        createIndexes();
+        seedMembers();
+        ZipfSampler hotMembers = new ZipfSampler(seededMemberIds.size(), PROFILE.hotMemberSkew());
+
+        System.out.printf("Warming up for %ds at %d req/s%n", PROFILE.warmupSeconds(), PROFILE.targetRps());
+        runPhase(PROFILE.warmupSeconds(), hotMembers, newHistograms(), new EnumMap<>(Operation.class));
+
+        Map<Operation, Histogram> latencies = newHistograms();
+        Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            errors.put(operation, new AtomicLong());
+        }
+        long retriesBefore = transactionRetries();
+        System.out.printf("Measuring for %ds at %d req/s%n", PROFILE.durationSeconds(), PROFILE.targetRps());
+        long elapsedNanos = runPhase(PROFILE.durationSeconds(), hotMembers, latencies, errors);
+        long transactionRetries = transactionRetries() - retriesBefore;
+
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            total.add(latencies.get(operation));
+            totalErrors += errors.get(operation).get();
+        }
+        long requests = total.getTotalCount();
+        long updates = latencies.get(Operation.UPDATE).getTotalCount();
+        double throughput = (requests - totalErrors) / (elapsedNanos / 1e9);
+        double errorRate = requests == 0 ? 1 : (double) totalErrors / requests;
+        double retryRate = updates == 0 ? 0 : (double) transactionRetries / updates;
+
+        System.out.printf("%n%-7s %9s %7s %9s %9s %9s %9s%n", "op", "requests", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            report(operation.name(), latencies.get(operation), errors.get(operation).get());
+        }
+        report("ALL", total, totalErrors);
+        System.out.printf("throughput %.1f req/s (target %d), transaction retries %d (%.3f per update)%n%n",
+                throughput, PROFILE.targetRps(), transactionRetries, retryRate);
+
+        assertAll(
+                () -> assertTrue(throughput >= PROFILE.targetRps() * PROFILE.minThroughputRatio(),
+                        String.format("throughput %.1f req/s below %.0f%% of target", throughput, PROFILE.minThroughputRatio() * 100)),
+                () -> assertTrue(millis(total.getValueAtPercentile(99)) <= PROFILE.maxP99Ms(),
+                        String.format("p99 %.1f ms above %.1f ms", millis(total.getValueAtPercentile(99)), PROFILE.maxP99Ms())),
+                () -> assertTrue(millis(total.getValueAtPercentile(99.9)) <= PROFILE.maxP999Ms(),
+                        String.format("p99.9 %.1f ms above %.1f ms", millis(total.getValueAtPercentile(99.9)), PROFILE.maxP999Ms())),
+                () -> assertTrue(errorRate <= PROFILE.maxErrorRate(),
+                        String.format("error rate %.4f above %.4f", errorRate, PROFILE.maxErrorRate())),
+                () -> assertTrue(retryRate <= PROFILE.maxTransactionRetryRate(),
+                        String.format("transaction retries per update %.3f above %.3f", retryRate, PROFILE.maxTransactionRetryRate())));
+    }
+
+    /**
+     * Schedules requests at a fixed rate for the given time and waits for all of them to complete
+     *
+     * @return Nanoseconds from the first scheduled request until the last one completed
+     */
+    private long runPhase(int seconds, ZipfSampler hotMembers, Map<Operation, Histogram> latencies,
+                          Map<Operation, AtomicLong> errors) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(PROFILE.concurrency());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / PROFILE.targetRps();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (long scheduled = start; scheduled < end; scheduled += intervalNanos) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long intendedStart = scheduled;
+            Operation operation = pickOperation();
+            workers.execute(() -> {
+                boolean succeeded = send(operation, hotMembers);
+                latencies.get(operation).recordValue(System.nanoTime() - intendedStart);
+                if (!succeeded && errors.containsKey(operation)) {
+                    errors.get(operation).incrementAndGet();
+                }
+            });
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.MINUTES);
+        return System.nanoTime() - start;
+    }
+
+    private Operation pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        if (roll < PROFILE.insertPercent()) {
+            return Operation.INSERT;
+        }
+        return roll < PROFILE.insertPercent() + PROFILE.updatePercent() ? Operation.UPDATE : Operation.READ;
+    }
+
+    private boolean send(Operation operation, ZipfSampler hotMembers) {
+        try {
+            return switch (operation) {
+                case INSERT -> post("/members/insert", newMemberId()) == 201;
+                case UPDATE -> post("/members/updateMemberKeepHistory", seededMemberIds.get(hotMembers.next())) == 200;
+                case READ -> get("/members/latestRecord/" + seededMemberIds.get(hotMembers.next())) == 200;
+            };
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Inserts every seeded member and updates it until it has historyDepth versions,
+     * spreading the members over the worker pool
+     */
+    private void seedMembers() throws InterruptedException {
+        System.out.printf("Seeding %d members with %d versions each%n", PROFILE.members(), PROFILE.historyDepth());
+        for (int i = 0; i < PROFILE.members(); i++) {
+            seededMemberIds.add("lt-" + runId + "-" + i);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(PROFILE.concurrency());
+        AtomicLong failures = new AtomicLong();
+        for (String memberId : seededMemberIds) {
+            workers.execute(() -> {
+                try {
+                    if (post("/members/insert", memberId) != 201) {
+                        failures.incrementAndGet();
+                    }
+                    for (int version = 2; version <= PROFILE.historyDepth(); version++) {
+                        if (post("/members/updateMemberKeepHistory", memberId) != 200) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.MINUTES);
+        assertEquals(0, failures.get(), "requests failed while seeding members");
+    }
+
+    /**
+     * Creates the indexes from the README so the run reflects a correctly set up database
+     */
+    private void createIndexes() {
+        MongoCollection<Document> members = mongoClient.getDatabase("memberdb").getCollection("member");
+        members.createIndex(Indexes.ascending("memberId", "currInd"), new IndexOptions()
+                .name("memberId_1_currInd_1")
+                .unique(true)
+                .partialFilterExpression(new Document("currInd", "Y")));
+        members.createIndex(Indexes.ascending("memberId"), new IndexOptions().name("memberId_1"));
+        mongoClient.getDatabase("memberdb").getCollection("memberUpdateKey").createIndex(
+                Indexes.ascending("createdAt"),
+                new IndexOptions().name("createdAt_ttl").expireAfter(86400L, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Counts transaction attempts that had to be thrown away: aborted transactions plus failed commits.
+     * withTransaction aborts and re-runs the body on transient errors such as write conflicts on a hot member
+     */
+    private long transactionRetries() {
+        long aborts = meterRegistry.find("mongodb.driver.commands").tag("command", "abortTransaction")
+                .timers().stream().mapToLong(Timer::count).sum();
+        long failedCommits = meterRegistry.find("mongodb.driver.commands").tag("command", "commitTransaction")
+                .tag("status", "FAILED").timers().stream().mapToLong(Timer::count).sum();
+        return aborts + failedCommits;
+    }
+
+    private String newMemberId() {
+        return "lt-" + runId + "-new-" + insertSequence.incrementAndGet();
+    }
+
+    private int post(String path, String memberId) throws Exception {
+        String body = String.format(
+                "{\"memberId\":\"%s\",\"firstName\":\"load\",\"lastName\":\"test\",\"primaryNumber\":\"401555%04d\"}",
+                memberId, ThreadLocalRandom.current().nextInt(10_000));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private int get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static Map<Operation, Histogram> newHistograms() {
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(3));
+        }
+        return histograms;
+    }
+
+    private static void report(String name, Histogram histogram, long errors) {
+        System.out.printf("%-7s %9d %7d %9.1f %9.1f %9.1f %9.1f%n", name, histogram.getTotalCount(), errors,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,164 @@
+package cvs.aetna.ipp.versionrecordupdates.repositories;
+
+import com.mongodb.MongoClientSettings;
+import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberHistoryBucketsTests {
+
+    private static final String MEMBER_ID = "12345681";
+    private static final YearMonth MONTH = YearMonth.of(2025, 3);
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+    @Test
+    void roundTripRestoresEveryVersion() {
+        List<Member> history = List.of(
+                member(1, "4015551234", 1, 5),
+                member(2, "4015551235", 5, 12),
+                member(3, "4015551236", 12, 20));
+
+        List<Member> restored = MemberHistoryBuckets.fromBucket(stored(MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, history)));
+
+        assertEquals(history.size(), restored.size());
+        for (int i = 0; i < history.size(); i++) {
+            assertSameVersion(history.get(i), restored.get(i));
+        }
+    }
+
+    @Test
+    void fieldsEqualAcrossVersionsAreStoredOnce() {
+        Document bucket = MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, List.of(
+                member(1, "4015551234", 1, 5),
+                member(2, "4015551235", 5, 12)));
+
+        Document shared = bucket.get("shared", Document.class);
+        assertEquals("scott", shared.getString("firstName"));
+        assertEquals("capista", shared.getString("lastName"));
+        assertFalse(shared.containsKey("primaryNumber"));
+
+        List<Document> versions = bucket.getList("versions", Document.class);
+        assertEquals("4015551234", versions.get(0).getString("primaryNumber"));
+        assertEquals("4015551235", versions.get(1).getString("primaryNumber"));
+        for (Document version : versions) {
+            assertFalse(version.containsKey("firstName"));
+            assertFalse(version.containsKey("lastName"));
+            assertFalse(version.containsKey("memberId"));
+            assertFalse(version.containsKey("currInd"));
+        }
+        assertAll(
+                () -> assertEquals(MEMBER_ID, bucket.getString("memberId")),
+                () -> assertEquals("2025-03", bucket.getString("month")),
+                () -> assertEquals(LocalDate.of(2025, 3, 1), bucket.get("firstEffStartDate")),
+                () -> assertEquals(LocalDate.of(2025, 3, 12), bucket.get("lastEffEndDate")),
+                () -> assertEquals(1, bucket.getInteger("minVersion")),
+                () -> assertEquals(2, bucket.getInteger("maxVersion")),
+                () -> assertEquals(2, bucket.getInteger("count")));
+    }
+
+    @Test
+    void mergingIntoExistingBucketKeepsEachVersionOnce() {
+        Member first = member(1, "4015551234", 1, 5);
+        Member second = member(2, "4015551235", 5, 12);
+        Member third = member(3, "4015551236", 12, 20);
+        Document existing = stored(MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, List.of(first, second)));
+
+        // Compaction adds the bucket's versions to the newly closed ones, which may overlap after a retried run
+        List<Member> versions = new ArrayList<>(List.of(third, second));
+        versions.addAll(MemberHistoryBuckets.fromBucket(existing));
+        Document merged = stored(MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, versions));
+
+        assertEquals(3, merged.getInteger("count"));
+        assertEquals(1, merged.getInteger("minVersion"));
+        assertEquals(3, merged.getInteger("maxVersion"));
+        List<Member> restored = MemberHistoryBuckets.fromBucket(merged);
+        assertEquals(List.of(1, 2, 3), restored.stream().map(Member::getVersion).toList());
+        assertSameVersion(first, restored.get(0));
+        assertSameVersion(second, restored.get(1));
+        assertSameVersion(third, restored.get(2));
+    }
+
+    @Test
+    void nullPrimaryNumberSurvivesRoundTrip() {
+        Document allNull = stored(MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, List.of(
+                member(1, null, 1, 5),
+                member(2, null, 5, 12))));
+        assertTrue(allNull.get("shared", Document.class).containsKey("primaryNumber"));
+        MemberHistoryBuckets.fromBucket(allNull).forEach(member -> assertNull(member.getPrimaryNumber()));
+
+        Document someNull = stored(MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, List.of(
+                member(1, null, 1, 5),
+                member(2, "4015551235", 5, 12))));
+        assertFalse(someNull.get("shared", Document.class).containsKey("primaryNumber"));
+        List<Member> restored = MemberHistoryBuckets.fromBucket(someNull);
+        assertNull(restored.get(0).getPrimaryNumber());
+        assertEquals("4015551235", restored.get(1).getPrimaryNumber());
+    }
+
+    @Test
+    void localDatesRoundTripAsUtcInAnyTimeZone() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            for (String zone : List.of("America/Los_Angeles", "Pacific/Kiritimati", "UTC")) {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                Member monthEnd = member(1, "4015551234", 31, 31);
+                monthEnd.setEffEndDate(LocalDate.of(2025, 4, 1));
+
+                Member restored = MemberHistoryBuckets.fromBucket(
+                        stored(MemberHistoryBuckets.toBucket(MEMBER_ID, MONTH, List.of(monthEnd)))).get(0);
+
+                assertEquals(LocalDate.of(2025, 3, 31), restored.getEffStartDate(), zone);
+                assertEquals(LocalDate.of(2025, 4, 1), restored.getEffEndDate(), zone);
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    // Encodes and decodes the bucket the way the driver writes and reads it, turning LocalDate into Date
+    private static Document stored(Document bucket) {
+        return new RawBsonDocument(bucket, DOCUMENT_CODEC).decode(DOCUMENT_CODEC);
+    }
+
+    private static Member member(int version, String primaryNumber, int startDay, int endDay) {
+        Member member = new Member();
+        member.setId(new ObjectId());
+        member.setMemberId(MEMBER_ID);
+        member.setFirstName("scott");
+        member.setLastName("capista");
+        member.setPrimaryNumber(primaryNumber);
+        member.setVersion(version);
+        member.setEffStartDate(MONTH.atDay(startDay));
+        member.setEffEndDate(MONTH.atDay(endDay));
+        member.setCurrInd("N");
+        return member;
+    }
+
+    private static void assertSameVersion(Member expected, Member actual) {
+        assertAll(
+                () -> assertEquals(expected.getId(), actual.getId()),
+                () -> assertEquals(expected.getMemberId(), actual.getMemberId()),
+                () -> assertEquals(expected.getVersion(), actual.getVersion()),
+                () -> assertEquals(expected.getFirstName(), actual.getFirstName()),
+                () -> assertEquals(expected.getLastName(), actual.getLastName()),
+                () -> assertEquals(expected.getPrimaryNumber(), actual.getPrimaryNumber()),
+                () -> assertEquals(expected.getEffStartDate(), actual.getEffStartDate()),
+                () -> assertEquals(expected.getEffEndDate(), actual.getEffEndDate()),
+                () -> assertEquals("N", actual.getCurrInd()));
+    }
+}
@@ -0,0 +1,123 @@
+package cvs.aetna.ipp.versionrecordupdates.repositories;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import cvs.aetna.ipp.versionrecordupdates.AbstractMongoIntegrationTests;
+import cvs.aetna.ipp.versionrecordupdates.model.Member;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemberHistoryCompactionIntegrationTests extends AbstractMongoIntegrationTests {
+
+    private static final LocalDate CUTOFF = LocalDate.of(2025, 2, 20);
+    private static final List<LocalDate> AS_OF_DATES = List.of(
+            LocalDate.of(2024, 12, 31),
+            LocalDate.of(2025, 1, 15),
+            LocalDate.of(2025, 1, 20),
+            LocalDate.of(2025, 2, 10),
+            LocalDate.of(2025, 2, 28),
+            LocalDate.of(2025, 3, 20));
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MongoClient mongoClient;
+
+    @Test
+    void readsAreUnchangedByCompaction() {
+        String memberId = UUID.randomUUID().toString();
+        memberRepository.save(member(memberId, "4015551230"));
+        for (int version = 2; version <= 5; version++) {
+            memberRepository.updateMemberKeepHistory(member(memberId, "401555123" + version), key(memberId, version));
+        }
+        // Spread the versions over January to March: January and February versions starting
+        // before the cutoff are compacted (two buckets) while version 4 stays standalone
+        backdate(memberId, 1, LocalDate.of(2025, 1, 10), LocalDate.of(2025, 1, 20));
+        backdate(memberId, 2, LocalDate.of(2025, 1, 20), LocalDate.of(2025, 2, 5));
+        backdate(memberId, 3, LocalDate.of(2025, 2, 5), LocalDate.of(2025, 2, 25));
+        backdate(memberId, 4, LocalDate.of(2025, 2, 25), LocalDate.of(2025, 3, 15));
+        backdate(memberId, 5, LocalDate.of(2025, 3, 15), LocalDate.of(2099, 12, 31));
+
+        List<List<Object>> historyBefore = describe(memberRepository.getMemberHistory(memberId));
+        Map<LocalDate, List<Object>> asOfBefore = asOf(memberId);
+        List<List<Object>> rawBefore = describe(rawHistory(memberId));
+        List<List<Object>> replayBefore = describe(
+                memberRepository.updateMemberKeepHistory(member(memberId, "4015551233"), key(memberId, 3)));
+
+        assertEquals(3, memberRepository.compactMemberHistory(memberId, CUTOFF));
+
+        assertEquals(5, historyBefore.size());
+        assertEquals(3, replayBefore.size());
+        assertEquals(historyBefore, rawBefore);
+        assertEquals(historyBefore, describe(memberRepository.getMemberHistory(memberId)));
+        assertEquals(asOfBefore, asOf(memberId));
+        assertEquals(rawBefore, describe(rawHistory(memberId)));
+        assertEquals(replayBefore, describe(
+                memberRepository.updateMemberKeepHistory(member(memberId, "4015551233"), key(memberId, 3))));
+    }
+
+    private void backdate(String memberId, int version, LocalDate effStartDate, LocalDate effEndDate) {
+        MongoCollection<Document> members = mongoClient.getDatabase("memberdb").getCollection("member");
+        members.updateOne(and(eq("memberId", memberId), eq("version", version)),
+                combine(set("effStartDate", effStartDate), set("effEndDate", effEndDate)));
+    }
+
+    private Map<LocalDate, List<Object>> asOf(String memberId) {
+        Map<LocalDate, List<Object>> effective = new LinkedHashMap<>();
+        for (LocalDate date : AS_OF_DATES) {
+            effective.put(date, describe(memberRepository.getMemberAsOf(memberId, date)));
+        }
+        return effective;
+    }
+
+    private List<Member> rawHistory(String memberId) {
+        Codec<Member> memberCodec = mongoClient.getDatabase("memberdb").getCollection("member", Member.class)
+                .getCodecRegistry().get(Member.class);
+        List<Member> members = new ArrayList<>();
+        memberRepository.streamMemberHistoryRaw(memberId, document -> members.add(document.decode(memberCodec)));
+        return members;
+    }
+
+    private static String key(String memberId, int version) {
+        return memberId + "-" + version;
+    }
+
+    private static Member member(String memberId, String primaryNumber) {
+        Member member = new Member();
+        member.setMemberId(memberId);
+        member.setFirstName("scott");
+        member.setLastName("capista");
+        member.setPrimaryNumber(primaryNumber);
+        return member;
+    }
+
+    private static List<List<Object>> describe(List<Member> members) {
+        return members.stream().map(MemberHistoryCompactionIntegrationTests::describe).toList();
+    }
+
+    private static List<Object> describe(Member member) {
+        if (member == null) {
+            return null;
+        }
+        return Arrays.asList(member.getId(), member.getMemberId(), member.getVersion(), member.getFirstName(),
+                member.getLastName(), member.getPrimaryNumber(), member.getEffStartDate(), member.getEffEndDate(),
+                member.getCurrInd());
+    }
+}